@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.*;
 
 public class BSCS2_RODRIGO_hc {
@@ -8,7 +12,8 @@ public class BSCS2_RODRIGO_hc {
         System.out.println("Choose an option:");
         System.out.println("1. Run backend in console (display tables and calculations)");
         System.out.println("2. Launch GUI");
-        System.out.print("Enter your choice (1 or 2): ");
+        System.out.println("3. Compress a file to gzip format");
+        System.out.print("Enter your choice (1, 2 or 3): ");
 
         int choice;
         try {
@@ -42,14 +47,14 @@ public class BSCS2_RODRIGO_hc {
                 HuffmanCoding.displayFrequencyTable(freqMap, input.length());
 
                 // Step 3: Build Huffman Tree
-                HuffmanNode root = HuffmanCoding.buildHuffmanTree(freqMap);
+                HuffmanTree tree = HuffmanCoding.buildHuffmanTree(freqMap);
 
                 // Step 4: Display Huffman Tree
-                HuffmanCoding.displayHuffmanTree(root);
+                HuffmanCoding.displayHuffmanTree(tree);
 
                 // Step 5: Generate Huffman Codes
                 HuffmanCoding.clearHuffmanCodes();
-                HuffmanCoding.generateCodes(root, "");
+                HuffmanCoding.generateCodes(tree, "");
 
                 // Step 6: Display Code Alphabet
                 HuffmanCoding.displayCodeAlphabet();
@@ -59,7 +64,7 @@ public class BSCS2_RODRIGO_hc {
                 System.out.println("\nEncoded string: " + encoded);
 
                 // Step 8: Decode
-                String decoded = HuffmanCoding.decode(root, encoded);
+                String decoded = HuffmanCoding.decode(tree, encoded);
                 System.out.println("Decoded string: " + decoded);
 
                 // Step 9: Verify and show compression
@@ -80,10 +85,74 @@ public class BSCS2_RODRIGO_hc {
         } else if (choice == 2) {
             // Launch GUI
             javax.swing.SwingUtilities.invokeLater(() -> new HuffmanCompressor());
+        } else if (choice == 3) {
+            // Compress a file into a .gz that any gzip tool can decompress
+            System.out.print("Enter the path of the file to compress: ");
+            Path source = Paths.get(scanner.nextLine().trim());
+            Path target = Paths.get(source + ".gz");
+
+            try {
+                compressFile(source, target);
+            } catch (FileAlreadyExistsException e) {
+                System.out.println("Error: " + target + " already exists.");
+            } catch (NoSuchFileException e) {
+                System.out.println("Error: " + e.getFile() + " does not exist.");
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            }
         } else {
             System.out.println("Invalid choice. Exiting...");
         }
 
         scanner.close();
     }
+
+    // Compress source into a new target file. Like gzip, an existing target is never overwritten:
+    // the name is claimed with CREATE_NEW, the data goes to a temp file in the same directory and
+    // is then moved over the claimed name in one step. On failure only files created here are removed.
+    private static void compressFile(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            if (in.size() > HuffmanGzip.MAX_INPUT_LENGTH) {
+                System.out.println("Error: File is too large to compress.");
+                return;
+            }
+
+            Files.createFile(target);
+            Path parent = target.toAbsolutePath().getParent();
+            Path temp = null;
+            boolean done = false;
+            try {
+                // Map the input and compress straight into a direct buffer, with no copies in between
+                ByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                ByteBuffer dst;
+                try {
+                    dst = ByteBuffer.allocateDirect(HuffmanGzip.maxCompressedLength(src.remaining()));
+                } catch (OutOfMemoryError e) {
+                    System.out.println("Error: Not enough direct memory to compress this file "
+                        + "(raise it with -XX:MaxDirectMemorySize).");
+                    return;
+                }
+                int compressedSize = HuffmanGzip.compress(src, dst);
+                dst.flip();
+
+                temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    while (dst.hasRemaining()) {
+                        out.write(dst);
+                    }
+                    out.force(true);
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                done = true;
+                System.out.printf("Wrote %s (%d bytes -> %d bytes)%n", target, in.size(), compressedSize);
+            } finally {
+                if (!done) {
+                    if (temp != null) {
+                        Files.deleteIfExists(temp);
+                    }
+                    Files.deleteIfExists(target); // Still the empty file claimed above
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
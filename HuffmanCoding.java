@@ -1,3 +1,5 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 class HuffmanNode implements Comparable<HuffmanNode> {
@@ -18,9 +20,138 @@ class HuffmanNode implements Comparable<HuffmanNode> {
     }
 }
 
+// Huffman Tree stored in flat parallel arrays. Nodes are numbered so every child comes
+// before its parent and the root is last: bottom-up passes walk the indices forwards,
+// top-down passes walk them backwards from the root
+class HuffmanTree {
+    static final int NONE = -1;
+
+    final char[] data;
+    final int[] frequency;
+    final int[] left, right;
+    int size;
+
+    // Empty tree with room for capacity nodes, filled in with addNode
+    public HuffmanTree(int capacity) {
+        this.data = new char[capacity];
+        this.frequency = new int[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.size = 0;
+    }
+
+    // Flatten a tree of HuffmanNode objects, for callers that still hold one
+    public HuffmanTree(HuffmanNode root) {
+        this(countNodes(root));
+
+        // Explicit stack of nodes waiting to be placed, with the parent slot each one fills.
+        // Nodes are numbered downwards as they are popped, so parents outrank their children.
+        int count = data.length;
+        HuffmanNode[] stack = new HuffmanNode[count];
+        int[] parentStack = new int[count];
+        boolean[] isRightStack = new boolean[count];
+        int top = 0;
+        if (root != null) {
+            stack[top] = root;
+            parentStack[top] = NONE;
+            top++;
+        }
+        while (top > 0) {
+            top--;
+            HuffmanNode node = stack[top];
+            int parent = parentStack[top];
+            int index = count - 1 - size++;
+            data[index] = node.data;
+            frequency[index] = node.frequency;
+            left[index] = NONE;
+            right[index] = NONE;
+            if (parent != NONE) {
+                if (isRightStack[top]) {
+                    right[parent] = index;
+                } else {
+                    left[parent] = index;
+                }
+            }
+            if (node.left != null) {
+                stack[top] = node.left;
+                parentStack[top] = index;
+                isRightStack[top] = false;
+                top++;
+            }
+            if (node.right != null) {
+                stack[top] = node.right;
+                parentStack[top] = index;
+                isRightStack[top] = true;
+                top++;
+            }
+        }
+    }
+
+    // Count the nodes reachable from root without recursion
+    private static int countNodes(HuffmanNode root) {
+        if (root == null) {
+            return 0;
+        }
+        ArrayDeque<HuffmanNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        int count = 0;
+        while (!stack.isEmpty()) {
+            HuffmanNode node = stack.pop();
+            count++;
+            if (node.left != null) stack.push(node.left);
+            if (node.right != null) stack.push(node.right);
+        }
+        return count;
+    }
+
+    // Append a node whose children, if any, were added before it; returns its index
+    public int addNode(char data, int frequency, int left, int right) {
+        this.data[size] = data;
+        this.frequency[size] = frequency;
+        this.left[size] = left;
+        this.right[size] = right;
+        return size++;
+    }
+
+    public int root() {
+        return size - 1;
+    }
+
+    public boolean isLeaf(int node) {
+        return left[node] == NONE && right[node] == NONE;
+    }
+
+    // Depth of every node, with the root at depth 0
+    public int[] depths() {
+        int[] depth = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            if (left[i] != NONE) depth[left[i]] = depth[i] + 1;
+            if (right[i] != NONE) depth[right[i]] = depth[i] + 1;
+        }
+        return depth;
+    }
+
+    // Parent of every node, NONE for the root
+    public int[] parents() {
+        int[] parent = new int[size];
+        Arrays.fill(parent, NONE);
+        for (int i = 0; i < size; i++) {
+            if (left[i] != NONE) parent[left[i]] = i;
+            if (right[i] != NONE) parent[right[i]] = i;
+        }
+        return parent;
+    }
+}
+
 public class HuffmanCoding {
     private static final Map<Character, String> huffmanCodes = new HashMap<>();
     
+    // Code words as flat primitive tables indexed by character, used by the encode hot path.
+    // They cover every char so they always agree with huffmanCodes.
+    private static final int TABLE_SIZE = Character.MAX_VALUE + 1;
+    private static final long[] codeBits = new long[TABLE_SIZE];
+    private static final byte[] codeLengths = new byte[TABLE_SIZE];
+    
     // Getter for huffmanCodes
     public static Map<Character, String> getHuffmanCodes() {
         return huffmanCodes;
@@ -28,80 +159,209 @@ public class HuffmanCoding {
     
     // Clear huffmanCodes for a new input
     public static void clearHuffmanCodes() {
+        // Only the entries of the current alphabet are set, so reset just those
+        for (char c : huffmanCodes.keySet()) {
+            codeBits[c] = 0L;
+            codeLengths[c] = 0;
+        }
         huffmanCodes.clear();
     }
     
     // Build Huffman Tree
-    public static HuffmanNode buildHuffmanTree(Map<Character, Integer> freqMap) {
-        PriorityQueue<HuffmanNode> priorityQueue = new PriorityQueue<>();
+    public static HuffmanTree buildHuffmanTree(Map<Character, Integer> freqMap) {
+        // n leaves and n - 1 merges, or a leaf and its parent for a single symbol
+        HuffmanTree tree = new HuffmanTree(2 * freqMap.size());
+        PriorityQueue<Integer> priorityQueue = new PriorityQueue<>(
+            (a, b) -> tree.frequency[a] - tree.frequency[b]);
         
         for (Map.Entry<Character, Integer> entry : freqMap.entrySet()) {
-            priorityQueue.offer(new HuffmanNode(entry.getKey(), entry.getValue()));
+            priorityQueue.offer(tree.addNode(entry.getKey(), entry.getValue(), HuffmanTree.NONE, HuffmanTree.NONE));
         }
         
         if (priorityQueue.size() == 1) {
-            HuffmanNode node = priorityQueue.poll();
-            HuffmanNode parent = new HuffmanNode('\0', node.frequency);
-            parent.left = node;
-            return parent;
+            int node = priorityQueue.poll();
+            tree.addNode('\0', tree.frequency[node], node, HuffmanTree.NONE);
+            return tree;
         }
         
         while (priorityQueue.size() > 1) {
-            HuffmanNode left = priorityQueue.poll();
-            HuffmanNode right = priorityQueue.poll();
-            
-            HuffmanNode parent = new HuffmanNode('\0', left.frequency + right.frequency);
-            parent.left = left;
-            parent.right = right;
+            int left = priorityQueue.poll();
+            int right = priorityQueue.poll();
             
-            priorityQueue.offer(parent);
+            priorityQueue.offer(tree.addNode('\0', tree.frequency[left] + tree.frequency[right], left, right));
         }
         
-        return priorityQueue.poll();
+        return tree;
     }
     
-    // Generate Huffman Codes
+    // Generate Huffman Codes from a tree of HuffmanNode objects
     public static void generateCodes(HuffmanNode root, String code) {
-        if (root == null) {
-            return;
+        generateCodes(new HuffmanTree(root), code);
+    }
+    
+    // Generate Huffman Codes
+    public static void generateCodes(HuffmanTree tree, String code) {
+        long prefixBits = 0;
+        for (char bit : code.toCharArray()) {
+            prefixBits = (prefixBits << 1) | (bit == '1' ? 1 : 0);
         }
         
-        if (root.left == null && root.right == null && root.data != '\0') {
-            huffmanCodes.put(root.data, code.length() > 0 ? code : "0");
-            return;
+        // Walk the tree top-down from the root, carrying each code as (bits, length)
+        long[] bits = new long[tree.size];
+        int[] lengths = new int[tree.size];
+        for (int i = tree.root(); i >= 0; i--) {
+            if (i == tree.root()) {
+                bits[i] = prefixBits;
+                lengths[i] = code.length();
+            }
+            
+            if (tree.isLeaf(i) && tree.data[i] != '\0') {
+                char c = tree.data[i];
+                int length = lengths[i] > 0 ? lengths[i] : 1; // A lone symbol still needs one bit
+                codeBits[c] = bits[i];
+                codeLengths[c] = (byte) length;
+                huffmanCodes.put(c, toCodeString(bits[i], length));
+                continue;
+            }
+            
+            if (tree.left[i] != HuffmanTree.NONE) {
+                bits[tree.left[i]] = bits[i] << 1;
+                lengths[tree.left[i]] = lengths[i] + 1;
+            }
+            if (tree.right[i] != HuffmanTree.NONE) {
+                bits[tree.right[i]] = (bits[i] << 1) | 1;
+                lengths[tree.right[i]] = lengths[i] + 1;
+            }
         }
-        
-        generateCodes(root.left, code + "0");
-        generateCodes(root.right, code + "1");
+    }
+    
+    // Render a (bits, length) code word as a string of '0' and '1'
+    private static String toCodeString(long bits, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ((bits >>> (length - 1 - i)) & 1) != 0 ? '1' : '0';
+        }
+        return new String(chars);
+    }
+    
+    // Look up the code length for a character, failing if it has no code
+    private static int codeLength(char c) {
+        int length = codeLengths[c];
+        if (length == 0) {
+            throw new IllegalArgumentException("Character " + c + " not found in Huffman codes");
+        }
+        return length;
     }
     
     // Encode the input string
     public static String encode(String input) {
-        StringBuilder encoded = new StringBuilder();
-        for (char c : input.toCharArray()) {
-            String code = huffmanCodes.get(c);
-            if (code == null) {
-                throw new IllegalArgumentException("Character " + c + " not found in Huffman codes");
+        StringBuilder encoded = new StringBuilder(Math.toIntExact(encodedBitLength(input)));
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int length = codeLength(c);
+            long bits = codeBits[c];
+            for (int shift = length - 1; shift >= 0; shift--) {
+                encoded.append(((bits >>> shift) & 1) != 0 ? '1' : '0');
             }
-            encoded.append(code);
         }
         return encoded.toString();
     }
     
-    // Decode the encoded string
+    // Number of bits the input encodes to, for sizing output buffers.
+    // A long, since long inputs with long code words pass 2^31 bits.
+    public static long encodedBitLength(CharSequence input) {
+        long totalBits = 0;
+        for (int i = 0; i < input.length(); i++) {
+            totalBits += codeLength(input.charAt(i));
+        }
+        return totalBits;
+    }
+    
+    // Encode the input into a caller-supplied array starting at offset, packing bits MSB-first.
+    // Needs (encodedBitLength(input) + 7) / 8 bytes of room and returns the number of bits written;
+    // nothing is written if the room is missing or a character has no code.
+    public static long encode(CharSequence input, byte[] out, int offset) {
+        long bytes = (encodedBitLength(input) + 7) / 8;
+        if (offset < 0 || offset > out.length || bytes > out.length - offset) {
+            throw new IndexOutOfBoundsException("Output array too small for " + bytes + " bytes at offset " + offset);
+        }
+        return packBits(input, out, offset, null);
+    }
+    
+    // Encode the input into a caller-supplied buffer at its position, packing bits MSB-first.
+    // Advances the position past the last byte written and returns the number of bits written;
+    // nothing is written if the buffer lacks room or a character has no code.
+    public static long encode(CharSequence input, ByteBuffer out) {
+        long bytes = (encodedBitLength(input) + 7) / 8;
+        if (bytes > out.remaining()) {
+            throw new BufferOverflowException();
+        }
+        if (out.hasArray()) {
+            int start = out.position();
+            long totalBits = packBits(input, out.array(), out.arrayOffset() + start, null);
+            out.position(start + (int) bytes);
+            return totalBits;
+        }
+        return packBits(input, null, 0, out);
+    }
+    
+    // Pack the code words of the input into either an array at offset or a buffer at its position.
+    // Callers check the room up front.
+    private static long packBits(CharSequence input, byte[] array, int offset, ByteBuffer buffer) {
+        long bits = 0;
+        int pending = 0;
+        long totalBits = 0;
+        int pos = offset;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int length = codeLengths[c];
+            bits = (bits << length) | codeBits[c];
+            pending += length;
+            totalBits += length;
+            while (pending >= 8) {
+                pending -= 8;
+                byte b = (byte) (bits >>> pending);
+                if (array != null) {
+                    array[pos++] = b;
+                } else {
+                    buffer.put(b);
+                }
+            }
+        }
+        if (pending > 0) {
+            byte b = (byte) (bits << (8 - pending));
+            if (array != null) {
+                array[pos] = b;
+            } else {
+                buffer.put(b);
+            }
+        }
+        return totalBits;
+    }
+    
+    // Decode the encoded string with a tree of HuffmanNode objects
     public static String decode(HuffmanNode root, String encoded) {
+        return decode(new HuffmanTree(root), encoded);
+    }
+    
+    // Decode the encoded string
+    public static String decode(HuffmanTree tree, String encoded) {
         StringBuilder decoded = new StringBuilder();
-        HuffmanNode current = root;
+        int root = tree.root();
+        int current = root;
         
         for (char bit : encoded.toCharArray()) {
             switch (bit) {
-                case '0' -> current = current.left;
-                case '1' -> current = current.right;
+                case '0' -> current = tree.left[current];
+                case '1' -> current = tree.right[current];
                 default -> throw new IllegalArgumentException("Invalid bit in encoded string: " + bit);
             }
+            if (current == HuffmanTree.NONE) {
+                throw new IllegalArgumentException("Encoded string does not follow the Huffman tree");
+            }
             
-            if (current.left == null && current.right == null) {
-                decoded.append(current.data);
+            if (tree.isLeaf(current)) {
+                decoded.append(tree.data[current]);
                 current = root;
             }
         }
@@ -154,33 +414,47 @@ public class HuffmanCoding {
         }
     }
     
-    // Display Huffman Tree
+    // Display Huffman Tree built from HuffmanNode objects
     public static void displayHuffmanTree(HuffmanNode root) {
+        displayHuffmanTree(new HuffmanTree(root));
+    }
+    
+    // Display Huffman Tree
+    public static void displayHuffmanTree(HuffmanTree tree) {
         System.out.println("\nHuffman Tree Structure:");
-        printHuffmanTree(root, 0);
+        printHuffmanTree(tree, 0);
     }
     
-    // Helper method to print Huffman Tree with indentation
-    private static void printHuffmanTree(HuffmanNode node, int level) {
-        if (node == null) {
+    // Helper method to print Huffman Tree with indentation, walking it in preorder with an explicit stack
+    private static void printHuffmanTree(HuffmanTree tree, int level) {
+        if (tree.size == 0) {
             return;
         }
+        int[] depth = tree.depths();
+        int[] parent = tree.parents();
+        int[] stack = new int[tree.size];
+        int top = 0;
+        stack[top++] = tree.root();
         
-        String indent = "  ".repeat(level);
-        
-        if (node.data == '\0') {
-            System.out.println(indent + "[Internal] (freq: " + node.frequency + ")");
-        } else {
-            System.out.println(indent + "Char: " + node.data + " (freq: " + node.frequency + ")");
-        }
-        
-        if (node.left != null) {
-            System.out.println(indent + "  Left:");
-            printHuffmanTree(node.left, level + 1);
-        }
-        if (node.right != null) {
-            System.out.println(indent + "  Right:");
-            printHuffmanTree(node.right, level + 1);
+        while (top > 0) {
+            int i = stack[--top];
+            String indent = "  ".repeat(level + depth[i]);
+            
+            // Label each child under its parent before printing it
+            if (parent[i] != HuffmanTree.NONE) {
+                String parentIndent = "  ".repeat(level + depth[parent[i]]);
+                System.out.println(parentIndent + (tree.left[parent[i]] == i ? "  Left:" : "  Right:"));
+            }
+            
+            if (tree.data[i] == '\0') {
+                System.out.println(indent + "[Internal] (freq: " + tree.frequency[i] + ")");
+            } else {
+                System.out.println(indent + "Char: " + tree.data[i] + " (freq: " + tree.frequency[i] + ")");
+            }
+            
+            // Push right first so the left subtree is printed first
+            if (tree.right[i] != HuffmanTree.NONE) stack[top++] = tree.right[i];
+            if (tree.left[i] != HuffmanTree.NONE) stack[top++] = tree.left[i];
         }
     }
     
@@ -12,7 +12,7 @@ public class HuffmanCompressor {
     private JTextArea calculationsArea;
     private JTextArea encodedArea;
     private JTextArea decodedArea;
-    private HuffmanNode huffmanRoot;
+    private HuffmanTree huffmanTree;
 
     public HuffmanCompressor() {
         // Initialize the GUI
@@ -156,12 +156,12 @@ public class HuffmanCompressor {
             displayFrequencyTable(freqMap, input.length());
 
             // Step 2: Build Huffman Tree
-            huffmanRoot = HuffmanCoding.buildHuffmanTree(freqMap);
-            huffmanTreePanel.setRoot(huffmanRoot, input.length());
+            huffmanTree = HuffmanCoding.buildHuffmanTree(freqMap);
+            huffmanTreePanel.setTree(huffmanTree, input.length());
 
             // Step 3: Generate Huffman Codes
             HuffmanCoding.clearHuffmanCodes();
-            HuffmanCoding.generateCodes(huffmanRoot, "");
+            HuffmanCoding.generateCodes(huffmanTree, "");
 
             // Step 4: Display Code Alphabet
             displayCodeAlphabet();
@@ -171,7 +171,7 @@ public class HuffmanCompressor {
             encodedArea.append("Encoded string: " + encoded + "\n");
 
             // Step 6: Decode
-            String decoded = HuffmanCoding.decode(huffmanRoot, encoded);
+            String decoded = HuffmanCoding.decode(huffmanTree, encoded);
             decodedArea.append("Decoded string: " + decoded + "\n");
 
             // Step 7: Verify and show compression
@@ -272,33 +272,38 @@ public class HuffmanCompressor {
 
     // Custom panel to draw the Huffman Tree graphically
     private class HuffmanTreePanel extends JPanel {
-        private HuffmanNode root;
+        private HuffmanTree tree;
+        private String[] combinedChars;
+        private int treeDepth;
+        private int treeWidth;
         private int totalChars;
         private static final int NODE_DIAMETER = 80; // Increased to fit text inside
         private static final int VERTICAL_GAP = 100; // Increased for better spacing
         private static final int HORIZONTAL_GAP = 60;
 
         public HuffmanTreePanel() {
-            this.root = null;
+            this.tree = null;
             this.totalChars = 0;
             setBackground(Color.WHITE);
             setPreferredSize(new Dimension(800, 600));
         }
 
-        public void setRoot(HuffmanNode root, int totalChars) {
-            this.root = root;
+        public void setTree(HuffmanTree tree, int totalChars) {
+            this.tree = tree != null && tree.size > 0 ? tree : null;
             this.totalChars = totalChars;
-            if (root != null) {
-                int depth = calculateDepth(root);
-                int width = calculateWidth(root);
-                setPreferredSize(new Dimension(width * HORIZONTAL_GAP + 200, depth * VERTICAL_GAP + 100));
+            if (this.tree != null) {
+                combinedChars = getCombinedCharacters(tree);
+                treeDepth = calculateDepth(tree);
+                treeWidth = calculateWidth(tree);
+                setPreferredSize(new Dimension(treeWidth * HORIZONTAL_GAP + 200, treeDepth * VERTICAL_GAP + 100));
             }
             revalidate();
             repaint();
         }
 
         public void clear() {
-            this.root = null;
+            this.tree = null;
+            this.combinedChars = null;
             this.totalChars = 0;
             setPreferredSize(new Dimension(800, 600));
             repaint();
@@ -307,88 +312,113 @@ public class HuffmanCompressor {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (root == null) return;
+            if (tree == null) return;
 
             Graphics2D g2d = (Graphics2D) g;
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             g2d.setFont(new Font("Arial", Font.PLAIN, 10)); // Smaller font to fit inside nodes
 
-            int treeWidth = calculateWidth(root) * HORIZONTAL_GAP;
-            int startX = (getWidth() - treeWidth) / 2 + NODE_DIAMETER / 2;
-            drawTree(g2d, root, startX, 50, HORIZONTAL_GAP * (calculateWidth(root) / 2));
+            int startX = (getWidth() - treeWidth * HORIZONTAL_GAP) / 2 + NODE_DIAMETER / 2;
+            drawTree(g2d, startX, 50, HORIZONTAL_GAP * (treeWidth / 2));
         }
 
-        private void drawTree(Graphics2D g, HuffmanNode node, int x, int y, int xOffset) {
-            if (node == null) return;
+        // Draw nodes from the root down, passing each child the position computed at its parent
+        private void drawTree(Graphics2D g, int rootX, int rootY, int rootXOffset) {
+            int[] xs = new int[tree.size];
+            int[] ys = new int[tree.size];
+            int[] xOffsets = new int[tree.size];
+            xs[tree.root()] = rootX;
+            ys[tree.root()] = rootY;
+            xOffsets[tree.root()] = rootXOffset;
+            FontMetrics fm = g.getFontMetrics();
 
-            // Calculate probability
-            double probability = totalChars > 0 ? (double) node.frequency / totalChars : 0;
-            String chars = getCombinedCharacters(node);
-            String label1 = chars;
-            String label2 = "weight: " + String.format("%.3f", probability);
+            for (int i = tree.root(); i >= 0; i--) {
+                int x = xs[i];
+                int y = ys[i];
+                int xOffset = xOffsets[i];
 
-            // Draw the node as a circle
-            g.setColor(new Color(135, 206, 250)); // Light blue (sky blue)
-            g.fillOval(x - NODE_DIAMETER / 2, y - NODE_DIAMETER / 2, NODE_DIAMETER, NODE_DIAMETER);
-            g.setColor(Color.BLACK);
-            g.drawOval(x - NODE_DIAMETER / 2, y - NODE_DIAMETER / 2, NODE_DIAMETER, NODE_DIAMETER);
+                // Calculate probability
+                double probability = totalChars > 0 ? (double) tree.frequency[i] / totalChars : 0;
+                String label1 = combinedChars[i];
+                String label2 = "weight: " + String.format("%.3f", probability);
 
-            // Draw the label inside the circle
-            g.setColor(Color.BLACK);
-            FontMetrics fm = g.getFontMetrics();
-            int textWidth1 = fm.stringWidth(label1);
-            int textWidth2 = fm.stringWidth(label2);
-            g.drawString(label1, x - textWidth1 / 2, y - 5);
-            g.drawString(label2, x - textWidth2 / 2, y + 15);
-
-            // Draw edges and children as curved lines
-            int childY = y + VERTICAL_GAP;
-            if (node.left != null) {
-                int leftX = x - xOffset;
+                // Draw the node as a circle
+                g.setColor(new Color(135, 206, 250)); // Light blue (sky blue)
+                g.fillOval(x - NODE_DIAMETER / 2, y - NODE_DIAMETER / 2, NODE_DIAMETER, NODE_DIAMETER);
                 g.setColor(Color.BLACK);
-                QuadCurve2D curve = new QuadCurve2D.Float(
-                    x, y + NODE_DIAMETER / 2,
-                    x - xOffset / 2, y + VERTICAL_GAP / 2,
-                    leftX, childY - NODE_DIAMETER / 2
-                );
-                g.draw(curve);
-                drawTree(g, node.left, leftX, childY, xOffset / 2);
-            }
-            if (node.right != null) {
-                int rightX = x + xOffset;
+                g.drawOval(x - NODE_DIAMETER / 2, y - NODE_DIAMETER / 2, NODE_DIAMETER, NODE_DIAMETER);
+
+                // Draw the label inside the circle
                 g.setColor(Color.BLACK);
-                QuadCurve2D curve = new QuadCurve2D.Float(
-                    x, y + NODE_DIAMETER / 2,
-                    x + xOffset / 2, y + VERTICAL_GAP / 2,
-                    rightX, childY - NODE_DIAMETER / 2
-                );
-                g.draw(curve);
-                drawTree(g, node.right, rightX, childY, xOffset / 2);
+                int textWidth1 = fm.stringWidth(label1);
+                int textWidth2 = fm.stringWidth(label2);
+                g.drawString(label1, x - textWidth1 / 2, y - 5);
+                g.drawString(label2, x - textWidth2 / 2, y + 15);
+
+                // Draw edges as curved lines and place the children
+                int childY = y + VERTICAL_GAP;
+                int left = tree.left[i];
+                if (left != HuffmanTree.NONE) {
+                    int leftX = x - xOffset;
+                    g.setColor(Color.BLACK);
+                    QuadCurve2D curve = new QuadCurve2D.Float(
+                        x, y + NODE_DIAMETER / 2,
+                        x - xOffset / 2, y + VERTICAL_GAP / 2,
+                        leftX, childY - NODE_DIAMETER / 2
+                    );
+                    g.draw(curve);
+                    xs[left] = leftX;
+                    ys[left] = childY;
+                    xOffsets[left] = xOffset / 2;
+                }
+                int right = tree.right[i];
+                if (right != HuffmanTree.NONE) {
+                    int rightX = x + xOffset;
+                    g.setColor(Color.BLACK);
+                    QuadCurve2D curve = new QuadCurve2D.Float(
+                        x, y + NODE_DIAMETER / 2,
+                        x + xOffset / 2, y + VERTICAL_GAP / 2,
+                        rightX, childY - NODE_DIAMETER / 2
+                    );
+                    g.draw(curve);
+                    xs[right] = rightX;
+                    ys[right] = childY;
+                    xOffsets[right] = xOffset / 2;
+                }
             }
         }
 
-        // Get combined characters for a node (e.g., "LHOE" for the root)
-        private String getCombinedCharacters(HuffmanNode node) {
-            if (node == null) return "";
-            if (node.left == null && node.right == null && node.data != '\0') {
-                return String.valueOf(node.data);
+        // Get combined characters for every node (e.g., "LHOE" for the root), children before parents
+        private String[] getCombinedCharacters(HuffmanTree tree) {
+            String[] chars = new String[tree.size];
+            for (int i = 0; i < tree.size; i++) {
+                if (tree.isLeaf(i)) {
+                    chars[i] = tree.data[i] != '\0' ? String.valueOf(tree.data[i]) : "";
+                } else {
+                    String leftChars = tree.left[i] != HuffmanTree.NONE ? chars[tree.left[i]] : "";
+                    String rightChars = tree.right[i] != HuffmanTree.NONE ? chars[tree.right[i]] : "";
+                    chars[i] = leftChars + rightChars;
+                }
             }
-            String leftChars = getCombinedCharacters(node.left);
-            String rightChars = getCombinedCharacters(node.right);
-            return leftChars + rightChars;
+            return chars;
         }
 
         // Calculate the depth of the tree for vertical spacing
-        private int calculateDepth(HuffmanNode node) {
-            if (node == null) return 0;
-            return 1 + Math.max(calculateDepth(node.left), calculateDepth(node.right));
+        private int calculateDepth(HuffmanTree tree) {
+            int maxDepth = 0;
+            for (int depth : tree.depths()) {
+                maxDepth = Math.max(maxDepth, depth + 1);
+            }
+            return maxDepth;
         }
 
         // Calculate the width of the tree (number of leaf nodes) for horizontal spacing
-        private int calculateWidth(HuffmanNode node) {
-            if (node == null) return 0;
-            if (node.left == null && node.right == null) return 1;
-            return calculateWidth(node.left) + calculateWidth(node.right);
+        private int calculateWidth(HuffmanTree tree) {
+            int leaves = 0;
+            for (int i = 0; i < tree.size; i++) {
+                if (tree.isLeaf(i)) leaves++;
+            }
+            return leaves;
         }
     }
 }
\ No newline at end of file
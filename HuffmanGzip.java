@@ -0,0 +1,467 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Writes gzip files (RFC 1952) whose DEFLATE stream (RFC 1951) uses literal-only
+// dynamic Huffman blocks built with HuffmanCoding.buildHuffmanTree, falling back to
+// stored blocks when Huffman coding does not pay off. No LZ77 matching is done.
+//
+// Input is read in chunks. While a chunk codes nearly as well with the open block's
+// table as a fresh table could, it is appended to that block, so no tree is built and
+// no new header is written; otherwise the block is ended and a new one started.
+public class HuffmanGzip {
+    private static final int CHUNK_SIZE = 16 * 1024; // Must stay within the 65535-byte stored block limit
+    private static final double REUSE_THRESHOLD = 0.05; // Allowed overshoot of the reused table over the estimated fresh-table cost
+    private static final int END_OF_BLOCK = 256;
+    private static final int LITERAL_CODES = 257; // Bytes 0-255 plus end-of-block
+    private static final int DISTANCE_CODES = 2; // Unused, but a block must still declare a distance code
+    private static final int MAX_CODE_LENGTH = 15;
+    private static final int MAX_CODE_LENGTH_CODE_LENGTH = 7;
+    private static final int CODE_LENGTH_CODES = 19;
+    private static final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int STORED_BLOCK_OVERHEAD = 5; // Block header byte plus LEN and NLEN
+
+    // Largest input whose worst-case output still fits in a single ByteBuffer
+    public static final int MAX_INPUT_LENGTH = 1 << 30;
+
+    // Upper bound on the compressed size of inputLength bytes, for sizing the output buffer.
+    // Throws IllegalArgumentException above MAX_INPUT_LENGTH, where the bound would overflow an int.
+    public static int maxCompressedLength(int inputLength) {
+        if (inputLength < 0 || inputLength > MAX_INPUT_LENGTH) {
+            throw new IllegalArgumentException("Input length " + inputLength + " is outside 0.." + MAX_INPUT_LENGTH);
+        }
+        int blocks = Math.max(1, (inputLength + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        return GZIP_HEADER_SIZE + inputLength + blocks * STORED_BLOCK_OVERHEAD + 1 + GZIP_TRAILER_SIZE;
+    }
+
+    // Compress src (position to limit) as a gzip member written into dst at its position.
+    // Advances both positions and returns the number of bytes written. Before writing anything,
+    // throws IllegalArgumentException if src holds more than MAX_INPUT_LENGTH bytes and
+    // BufferOverflowException if dst has fewer than maxCompressedLength bytes remaining.
+    public static int compress(ByteBuffer src, ByteBuffer dst) {
+        if (dst.remaining() < maxCompressedLength(src.remaining())) {
+            throw new BufferOverflowException();
+        }
+        int start = src.position();
+        int end = src.limit();
+        int outStart = dst.position();
+
+        writeGzipHeader(dst);
+
+        BitWriter out = new BitWriter(dst);
+        List<Block> blocks = planBlocks(src, start, end);
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            boolean last = i == blocks.size() - 1;
+            if (block.header != null) {
+                writeHuffmanBlock(out, src, block.start, block.end, last, block.header);
+            } else {
+                writeStoredBlock(out, src, block.start, block.end, last);
+            }
+        }
+        out.alignToByte();
+
+        CRC32 crc = new CRC32();
+        crc.update(src.duplicate());
+        writeIntLE(dst, (int) crc.getValue());
+        writeIntLE(dst, end - start); // ISIZE is the input length modulo 2^32
+        src.position(end);
+
+        return dst.position() - outStart;
+    }
+
+    // A run of input written as one DEFLATE block; header is null for a stored block
+    private static class Block {
+        final int start;
+        int end;
+        final DynamicHeader header;
+        double redundancyPerSymbol; // Bits per symbol the table spent above entropy on its first chunk
+
+        Block(int start, int end, DynamicHeader header) {
+            this.start = start;
+            this.end = end;
+            this.header = header;
+        }
+    }
+
+    // Split the input into blocks chunk by chunk. A chunk extends the open Huffman block when
+    // coding it with that block's table costs at most REUSE_THRESHOLD more than a fresh table is
+    // estimated to, without building one: the chunk's entropy, plus the redundancy the open table
+    // had over its own first chunk, plus a new header. Otherwise the chunk starts a dynamic
+    // Huffman or stored block, whichever is smaller.
+    // Blocks are planned before anything is written because each header carries the final-block bit.
+    private static List<Block> planBlocks(ByteBuffer src, int start, int end) {
+        List<Block> blocks = new ArrayList<>();
+        if (start == end) {
+            blocks.add(new Block(start, end, null));
+            return blocks;
+        }
+
+        int[] freq = new int[LITERAL_CODES];
+        int[] tableFreq = new int[LITERAL_CODES];
+        boolean[] seen = new boolean[END_OF_BLOCK];
+        Block open = null;
+        long bitPosition = 0;
+        for (int chunkStart = start; chunkStart < end; chunkStart += CHUNK_SIZE) {
+            int chunkEnd = Math.min(end, chunkStart + CHUNK_SIZE);
+            int length = chunkEnd - chunkStart;
+            Arrays.fill(freq, 0);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                freq[src.get(i) & 0xFF]++;
+            }
+            long storedBits = 3 + paddingAfter(bitPosition + 3) + 32 + 8L * length;
+
+            if (open != null) {
+                long reuseBits = reuseBitCost(freq, open.header.lengths);
+                double freshEstimate = entropyBits(freq, length) + open.redundancyPerSymbol * length
+                    + open.header.bitCost();
+                if (reuseBits <= storedBits && reuseBits <= freshEstimate * (1 + REUSE_THRESHOLD)) {
+                    open.end = chunkEnd;
+                    bitPosition += reuseBits;
+                    continue;
+                }
+            }
+
+            // Give bytes seen earlier in the input a code too, so later chunks that
+            // contain them can still reuse this table
+            freq[END_OF_BLOCK] = 1;
+            for (int symbol = 0; symbol < END_OF_BLOCK; symbol++) {
+                tableFreq[symbol] = freq[symbol] > 0 ? freq[symbol] : (seen[symbol] ? 1 : 0);
+                seen[symbol] |= freq[symbol] > 0;
+            }
+            tableFreq[END_OF_BLOCK] = 1;
+            DynamicHeader header = new DynamicHeader(tableFreq);
+            long huffmanBits = header.bitCost() + dataBitCost(freq, header.lengths);
+            if (huffmanBits < storedBits) {
+                open = new Block(chunkStart, chunkEnd, header);
+                long symbolBits = huffmanBits - header.bitCost() - header.lengths[END_OF_BLOCK];
+                open.redundancyPerSymbol = (symbolBits - entropyBits(freq, length)) / length;
+                bitPosition += huffmanBits;
+            } else {
+                open = null;
+                bitPosition += storedBits;
+            }
+            blocks.add(open != null ? open : new Block(chunkStart, chunkEnd, null));
+        }
+        return blocks;
+    }
+
+    // Padding needed to reach a byte boundary from the given bit position
+    private static int paddingAfter(long bitPosition) {
+        return (int) ((8 - bitPosition % 8) % 8);
+    }
+
+    // Bits needed to code a histogram with an existing table, or Long.MAX_VALUE if a symbol has no code
+    private static long reuseBitCost(int[] freq, int[] lengths) {
+        long bits = 0;
+        for (int symbol = 0; symbol < END_OF_BLOCK; symbol++) {
+            if (freq[symbol] > 0) {
+                if (lengths[symbol] == 0) {
+                    return Long.MAX_VALUE;
+                }
+                bits += (long) freq[symbol] * lengths[symbol];
+            }
+        }
+        return bits;
+    }
+
+    // Shannon entropy of a histogram in total bits, a lower bound on any table built for it
+    private static double entropyBits(int[] freq, int totalSymbols) {
+        double bits = 0.0;
+        for (int symbol = 0; symbol < END_OF_BLOCK; symbol++) {
+            if (freq[symbol] > 0) {
+                bits += freq[symbol] * (Math.log((double) totalSymbols / freq[symbol]) / Math.log(2));
+            }
+        }
+        return bits;
+    }
+
+    private static void writeStoredBlock(BitWriter out, ByteBuffer src, int start, int end, boolean last) {
+        int length = end - start;
+        out.writeBits(last ? 1 : 0, 1);
+        out.writeBits(0, 2); // BTYPE 00: no compression
+        out.alignToByte();
+        out.writeBits(length, 16);
+        out.writeBits(~length & 0xFFFF, 16);
+        out.putBytes(src, start, end);
+    }
+
+    private static void writeHuffmanBlock(BitWriter out, ByteBuffer src, int start, int end, boolean last,
+                                          DynamicHeader header) {
+        out.writeBits(last ? 1 : 0, 1);
+        out.writeBits(2, 2); // BTYPE 10: dynamic Huffman codes
+        header.write(out);
+
+        int[] codes = header.codes;
+        int[] lengths = header.lengths;
+        for (int i = start; i < end; i++) {
+            int b = src.get(i) & 0xFF;
+            out.writeBits(codes[b], lengths[b]);
+        }
+        out.writeBits(codes[END_OF_BLOCK], lengths[END_OF_BLOCK]);
+    }
+
+    // Bits needed to code a histogram with the given code lengths
+    static long dataBitCost(int[] freq, int[] lengths) {
+        long bits = 0;
+        for (int symbol = 0; symbol < freq.length; symbol++) {
+            bits += (long) freq[symbol] * lengths[symbol];
+        }
+        return bits;
+    }
+
+    // Code tables of a dynamic Huffman block and the run-length coded header describing them
+    static class DynamicHeader {
+        final int[] lengths;
+        final int[] codes;
+        private final int[] codeLengthLengths;
+        private final int[] codeLengthCodes;
+        private final int[] runSymbols;
+        private final int[] runExtra;
+        private final int runCount;
+        private final int storedCodeLengthCodes;
+
+        DynamicHeader(int[] freq) {
+            lengths = codeLengths(freq, MAX_CODE_LENGTH);
+            codes = canonicalCodes(lengths, MAX_CODE_LENGTH);
+
+            // Literal and distance code lengths are run-length coded as one sequence
+            int[] all = new int[LITERAL_CODES + DISTANCE_CODES];
+            System.arraycopy(lengths, 0, all, 0, LITERAL_CODES);
+            Arrays.fill(all, LITERAL_CODES, all.length, 1);
+
+            runSymbols = new int[all.length];
+            runExtra = new int[all.length];
+            int count = 0;
+            int i = 0;
+            while (i < all.length) {
+                int value = all[i];
+                int run = 1;
+                while (i + run < all.length && all[i + run] == value) {
+                    run++;
+                }
+                if (value == 0 && run >= 11) {
+                    run = Math.min(run, 138);
+                    runSymbols[count] = 18;
+                    runExtra[count++] = run - 11;
+                } else if (value == 0 && run >= 3) {
+                    runSymbols[count] = 17;
+                    runExtra[count++] = run - 3;
+                } else if (value != 0 && run >= 4) {
+                    run = Math.min(run, 7);
+                    runSymbols[count++] = value;
+                    runSymbols[count] = 16;
+                    runExtra[count++] = run - 4;
+                } else {
+                    run = 1;
+                    runSymbols[count++] = value;
+                }
+                i += run;
+            }
+            runCount = count;
+
+            int[] codeLengthFreq = new int[CODE_LENGTH_CODES];
+            for (int r = 0; r < runCount; r++) {
+                codeLengthFreq[runSymbols[r]]++;
+            }
+            codeLengthLengths = codeLengths(codeLengthFreq, MAX_CODE_LENGTH_CODE_LENGTH);
+            codeLengthCodes = canonicalCodes(codeLengthLengths, MAX_CODE_LENGTH_CODE_LENGTH);
+
+            int stored = CODE_LENGTH_CODES;
+            while (stored > 4 && codeLengthLengths[CODE_LENGTH_ORDER[stored - 1]] == 0) {
+                stored--;
+            }
+            storedCodeLengthCodes = stored;
+        }
+
+        // Header size in bits, including the 3-bit block header
+        long bitCost() {
+            long bits = 3 + 5 + 5 + 4 + 3L * storedCodeLengthCodes;
+            for (int r = 0; r < runCount; r++) {
+                bits += codeLengthLengths[runSymbols[r]] + extraBits(runSymbols[r]);
+            }
+            return bits;
+        }
+
+        void write(BitWriter out) {
+            out.writeBits(LITERAL_CODES - 257, 5);
+            out.writeBits(DISTANCE_CODES - 1, 5);
+            out.writeBits(storedCodeLengthCodes - 4, 4);
+            for (int i = 0; i < storedCodeLengthCodes; i++) {
+                out.writeBits(codeLengthLengths[CODE_LENGTH_ORDER[i]], 3);
+            }
+            for (int r = 0; r < runCount; r++) {
+                int symbol = runSymbols[r];
+                out.writeBits(codeLengthCodes[symbol], codeLengthLengths[symbol]);
+                out.writeBits(runExtra[r], extraBits(symbol));
+            }
+        }
+
+        private static int extraBits(int codeLengthSymbol) {
+            return switch (codeLengthSymbol) {
+                case 16 -> 2;
+                case 17 -> 3;
+                case 18 -> 7;
+                default -> 0;
+            };
+        }
+    }
+
+    // Huffman code lengths for a histogram, from buildHuffmanTree and limited to maxLength
+    static int[] codeLengths(int[] freq, int maxLength) {
+        Map<Character, Integer> freqMap = new HashMap<>();
+        for (int symbol = 0; symbol < freq.length; symbol++) {
+            if (freq[symbol] > 0) {
+                freqMap.put((char) symbol, freq[symbol]);
+            }
+        }
+
+        // Leaves are found by shape: symbol 0 shares its value with the internal-node marker
+        HuffmanTree tree = HuffmanCoding.buildHuffmanTree(freqMap);
+        int[] depth = tree.depths();
+        int[] lengths = new int[freq.length];
+        for (int i = 0; i < tree.size; i++) {
+            if (tree.isLeaf(i)) {
+                lengths[tree.data[i]] = depth[i];
+            }
+        }
+
+        limitCodeLengths(lengths, maxLength);
+        return lengths;
+    }
+
+    // Shorten codes longer than maxLength, lengthening others until the Kraft sum is exact again.
+    // Symbols keep their relative order, so more frequent symbols never get longer codes.
+    private static void limitCodeLengths(int[] lengths, int maxLength) {
+        int longest = 0;
+        for (int length : lengths) {
+            longest = Math.max(longest, length);
+        }
+        if (longest <= maxLength) {
+            return;
+        }
+
+        int[] lengthCount = new int[longest + 1];
+        for (int length : lengths) {
+            if (length > 0) {
+                lengthCount[length]++;
+            }
+        }
+        for (int length = maxLength + 1; length <= longest; length++) {
+            lengthCount[maxLength] += lengthCount[length];
+        }
+
+        long kraft = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            kraft += (long) lengthCount[length] << (maxLength - length);
+        }
+        while (kraft > 1L << maxLength) {
+            lengthCount[maxLength]--;
+            for (int length = maxLength - 1; length > 0; length--) {
+                if (lengthCount[length] != 0) {
+                    lengthCount[length]--;
+                    lengthCount[length + 1] += 2;
+                    break;
+                }
+            }
+            kraft--;
+        }
+
+        // Hand the new lengths out to symbols in order of their original lengths
+        int[] order = new int[lengths.length];
+        int count = 0;
+        for (int length = 1; length <= longest; length++) {
+            for (int symbol = 0; symbol < lengths.length; symbol++) {
+                if (lengths[symbol] == length) {
+                    order[count++] = symbol;
+                }
+            }
+        }
+        int next = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            for (int n = 0; n < lengthCount[length]; n++) {
+                lengths[order[next++]] = length;
+            }
+        }
+    }
+
+    // Canonical codes for the given lengths (RFC 1951 section 3.2.2), bit-reversed
+    // because DEFLATE packs Huffman codes starting from their most significant bit
+    static int[] canonicalCodes(int[] lengths, int maxLength) {
+        int[] lengthCount = new int[maxLength + 1];
+        for (int length : lengths) {
+            if (length > 0) {
+                lengthCount[length]++;
+            }
+        }
+        int[] nextCode = new int[maxLength + 1];
+        int code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCount[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+
+        int[] codes = new int[lengths.length];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length > 0) {
+                codes[symbol] = Integer.reverse(nextCode[length]++) >>> (32 - length);
+            }
+        }
+        return codes;
+    }
+
+    private static void writeGzipHeader(ByteBuffer dst) {
+        if (dst.remaining() < GZIP_HEADER_SIZE) {
+            throw new BufferOverflowException();
+        }
+        dst.put((byte) 0x1F).put((byte) 0x8B); // Magic number
+        dst.put((byte) 8); // Compression method: deflate
+        dst.put((byte) 0); // Flags: no name, comment or extra fields
+        writeIntLE(dst, 0); // No modification time
+        dst.put((byte) 0); // Extra flags
+        dst.put((byte) 255); // Operating system: unknown
+    }
+
+    private static void writeIntLE(ByteBuffer dst, int value) {
+        dst.put((byte) value).put((byte) (value >>> 8)).put((byte) (value >>> 16)).put((byte) (value >>> 24));
+    }
+
+    // Packs bits least significant first, as DEFLATE expects, straight into a ByteBuffer
+    static class BitWriter {
+        private final ByteBuffer dst;
+        private long buffer;
+        private int bitCount;
+
+        BitWriter(ByteBuffer dst) {
+            this.dst = dst;
+        }
+
+        void writeBits(int value, int count) {
+            buffer |= (long) (value & ((1 << count) - 1)) << bitCount;
+            bitCount += count;
+            while (bitCount >= 8) {
+                dst.put((byte) buffer);
+                buffer >>>= 8;
+                bitCount -= 8;
+            }
+        }
+
+        void alignToByte() {
+            if (bitCount > 0) {
+                writeBits(0, 8 - bitCount);
+            }
+        }
+
+        // Copy bytes from src unchanged; only valid on a byte boundary
+        void putBytes(ByteBuffer src, int start, int end) {
+            ByteBuffer slice = src.duplicate();
+            slice.limit(end).position(start);
+            dst.put(slice);
+        }
+    }
+}